@@ -33,16 +33,20 @@ import java.io.IOException;
  */
 public class Adafruit8x8LEDMatrix extends AdafruitLEDBackPack implements LEDMatrix, LEDBackPack {
 
+    private final MessageFrameCache frameCache;
+
     /**
      * construct an 8*8 bicolor LED matrix
      *
      * @param busNr the bus nr, 1 on current Pi revision, 0 for older revisions
      * @param address the I2C address of the Adafruit backback (default is 0x0070)
+     * @param frameCache cache for pre-rendered text frames
      *
      * @throws IOException
      */
-    Adafruit8x8LEDMatrix(int busNr, int address) throws IOException {
+    Adafruit8x8LEDMatrix(int busNr, int address, MessageFrameCache frameCache) throws IOException {
         super(busNr, address);
+        this.frameCache = frameCache;
     }
 
     @Override
@@ -76,26 +80,27 @@ public class Adafruit8x8LEDMatrix extends AdafruitLEDBackPack implements LEDMatr
         }
     }
 
-    private void writeStringNoScroll(String text, int durationPerChar) {
-
-        clear(true);
+    /**
+     * write a frame to the buffer and display it
+     *
+     * @param frame the frame, see MessageFrameCache
+     */
+    private void writeFrame(long frame) {
+        for(int row = 0; row < 8; row++){
+            setBufferRow(row, MessageFrameCache.getRow(frame, row));
+        }
+        writeDisplay();
+    }
 
-        for(char c : text.toCharArray()){
+    private void writeStringNoScroll(String text, int durationPerChar) {
 
-            int i = c;
-            i -= 31; // offset in Font8x8
+        long[] frames = frameCache.getFrames(text, false);
 
-            int[] buffer = Font8x8.FONT8x8[i];
+        clear(true);
 
-            int row = 0;
-            for(int bufferRow : buffer){
-                // fit it to our hardware setup (pins of LED matrix to the left
-                bufferRow = Integer.reverse(bufferRow);
-                bufferRow = Integer.reverseBytes(bufferRow);
-                setBufferRow(row++, bufferRow);
-            }
+        for(long frame : frames){
 
-            writeDisplay();
+            writeFrame(frame);
 
             try {
                 Thread.sleep(durationPerChar);
@@ -116,48 +121,19 @@ public class Adafruit8x8LEDMatrix extends AdafruitLEDBackPack implements LEDMatr
 
     private void writeStringScroll(String text, int durationPerChar) {
 
-        clear(true);
-
-        // add a space before and after text
-        text = " " + text + " ";
-
-        for(int pos = 0; pos < text.length()-1; pos++){
-
-            // get buffer for current and next char
-            int i1 = text.charAt(pos) - 31;
-            int[] buffer1 = Font8x8.FONT8x8[i1];
-
-            int i2 = text.charAt(pos+1) -31;
-            int[] buffer2 = Font8x8.FONT8x8[i2];
-
-            // we will scroll through the 8 LED columns
-            for(int col = 0; col < 8; col++){
-                for(int row = 0; row < 8; row++){
+        long[] frames = frameCache.getFrames(text, true);
 
-                    // fit it to our hardware setup (pins of LED matrix to the left
-                    int bufferRow1 = Integer.reverse(buffer1[row]);
-                    bufferRow1 = Integer.reverseBytes(bufferRow1);
-
-                    int bufferRow2 = Integer.reverse(buffer2[row]);
-                    bufferRow2 = Integer.reverseBytes(bufferRow2);
-
-                    // shift current row by col
-                    bufferRow1 = bufferRow1 >>> col;
-                    // shift row of next char by 8-col
-                    bufferRow2 = bufferRow2 << (8-col);
+        clear(true);
 
-                    // now combine them, but only use lower 8 bits
-                    int bufferRow = 0xFF & (bufferRow1 | bufferRow2);
-                    setBufferRow(row, bufferRow);
-                    writeDisplay();
+        // we scroll through the 8 LED columns of each char
+        for(long frame : frames){
 
-                }
+            writeFrame(frame);
 
-                try {
-                    Thread.sleep(durationPerChar / 8);
-                } catch (InterruptedException e) {}
+            try {
+                Thread.sleep(durationPerChar / 8);
+            } catch (InterruptedException e) {}
 
-            }
         }
 
         clear(true);
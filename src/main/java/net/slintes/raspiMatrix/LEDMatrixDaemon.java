@@ -0,0 +1,245 @@
+/*
+ * Copyright 2013 Marc Sluiter
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package net.slintes.raspiMatrix;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+/**
+ * long running entry point, which initializes the LED matrix once and then reads
+ * commands line by line from stdin or a named pipe
+ *
+ * pixel, row, frame and clear only change the buffer, flush writes it to the display,
+ * so a batch of commands costs a single bus write
+ *
+ * commands:
+ * pixel &lt;row&gt; &lt;column&gt; &lt;OFF|RED|YELLOW|GREEN&gt;
+ * row &lt;row&gt; &lt;value&gt;              value as in the buffer: lower byte green, higher byte red, e.g. 0x00FF
+ * frame &lt;value0&gt; .. &lt;value7&gt;     all 8 rows
+ * clear
+ * flush
+ * text &lt;durationPerChar&gt; &lt;scroll|noscroll&gt; &lt;text&gt;
+ * prepare &lt;scroll|noscroll&gt; &lt;text&gt;
+ * brightness &lt;0..15&gt;
+ * blink &lt;DISPLAY_OFF|BLINK_OFF|TWO_HZ|ONE_HZ|HALF_HZ&gt;
+ * quit
+ *
+ * usage: LEDMatrixDaemon [busNr [address [pipe]]]
+ * exits with an error if the LED backpack can not be accessed
+ *
+ */
+public class LEDMatrixDaemon {
+
+    private final LEDMatrix matrix;
+    private final MessageFrameCache frameCache;
+
+    // buffer changed since last flush
+    private boolean dirty = false;
+
+    // quit command received
+    private boolean quit = false;
+
+    /**
+     * constructs a daemon
+     *
+     * @param matrix the matrix to write to
+     * @param frameCache the frame cache used by the matrix, for prewarming
+     */
+    public LEDMatrixDaemon(LEDMatrix matrix, MessageFrameCache frameCache) {
+        this.matrix = matrix;
+        this.frameCache = frameCache;
+    }
+
+    public static void main(String[] args) throws IOException {
+
+        int busNr = args.length > 0 ? Integer.decode(args[0]) : 1;
+        int address = args.length > 1 ? Integer.decode(args[1]) : 0x0070;
+        String pipe = args.length > 2 ? args[2] : null;
+
+        MessageFrameCache frameCache = new MessageFrameCache();
+        LEDMatrix matrix = LEDMatrixFactory.createLEDMatrix(busNr, address, frameCache);
+        if(!(matrix instanceof Adafruit8x8LEDMatrix)){
+            // the factory falls back to System.out if the backpack can not be accessed
+            System.err.println("no LED backpack found on bus " + busNr + ", address 0x" + Integer.toHexString(address));
+            System.exit(1);
+        }
+        System.err.println("using " + matrix.getClass().getSimpleName() + " on bus " + busNr + ", address 0x" + Integer.toHexString(address));
+
+        LEDMatrixDaemon daemon = new LEDMatrixDaemon(matrix, frameCache);
+
+        if(pipe == null){
+            daemon.run(new BufferedReader(new InputStreamReader(System.in, "UTF-8")));
+            return;
+        }
+
+        // a named pipe hits EOF every time a writer closes it, so open it again for the next writer,
+        // a regular file is read only once
+        boolean isFifo = !new File(pipe).isFile();
+        do {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(pipe), "UTF-8"));
+            try {
+                daemon.run(reader);
+            } finally {
+                reader.close();
+            }
+        } while(isFifo && !daemon.quit);
+    }
+
+    /**
+     * executes all commands until end of stream or quit, flushes a pending batch at the end
+     *
+     * @param reader the command source
+     * @throws IOException if reading fails
+     */
+    public void run(BufferedReader reader) throws IOException {
+
+        String line;
+        while(!quit && (line = reader.readLine()) != null){
+            try {
+                execute(line);
+            } catch (RuntimeException e) {
+                System.err.println("invalid command '" + line + "': " + e);
+            }
+        }
+
+        flush();
+    }
+
+    /**
+     * executes a single command
+     *
+     * @param line the command line
+     */
+    public void execute(String line) {
+
+        line = line.trim();
+        if(line.isEmpty() || line.startsWith("#")){
+            return;
+        }
+
+        String[] parts = line.split("\\s+", 2);
+        String command = parts[0].toLowerCase();
+        String arguments = parts.length > 1 ? parts[1] : "";
+
+        if(command.equals("pixel")){
+            String[] a = split(arguments, 3);
+            setPixel(Integer.parseInt(a[0]), Integer.parseInt(a[1]), LEDMatrix.LedColor.valueOf(a[2].toUpperCase()));
+            dirty = true;
+        } else if(command.equals("row")){
+            String[] a = split(arguments, 2);
+            setRow(Integer.parseInt(a[0]), Integer.decode(a[1]));
+            dirty = true;
+        } else if(command.equals("frame")){
+            String[] a = split(arguments, 8);
+            for(int row = 0; row < 8; row++){
+                setRow(row, Integer.decode(a[row]));
+            }
+            dirty = true;
+        } else if(command.equals("clear")){
+            matrix.clear(false);
+            dirty = true;
+        } else if(command.equals("flush")){
+            flush();
+        } else if(command.equals("text")){
+            String[] a = splitText(arguments, 3);
+            int durationPerChar = Integer.parseInt(a[0]);
+            boolean doScroll = isScroll(a[1]);
+            // writeString flushes on its own, so send the pending batch first
+            flush();
+            matrix.writeString(a[2], durationPerChar, doScroll);
+        } else if(command.equals("prepare")){
+            String[] a = splitText(arguments, 2);
+            frameCache.prewarm(isScroll(a[0]), a[1]);
+        } else if(command.equals("brightness")){
+            matrix.setBrightness(Integer.parseInt(split(arguments, 1)[0]));
+        } else if(command.equals("blink")){
+            matrix.setBlinkRate(LEDBackPack.BlinkRate.valueOf(split(arguments, 1)[0].toUpperCase()));
+        } else if(command.equals("quit")){
+            quit = true;
+        } else {
+            throw new IllegalArgumentException("unknown command " + command);
+        }
+    }
+
+    /**
+     * writes the buffer to the display, if it was changed since the last flush
+     */
+    public void flush() {
+        if(dirty){
+            matrix.writeDisplay();
+            dirty = false;
+        }
+    }
+
+    private void setRow(int row, int value) {
+        checkRange("row", row);
+        for(int column = 0; column < 8; column++){
+            boolean green = (value & (1 << column)) != 0; // lower byte is for green LED
+            boolean red = (value & (1 << (column + 8))) != 0; // higher byte is for red LED
+            LEDMatrix.LedColor color = green && red ? LEDMatrix.LedColor.YELLOW
+                    : green ? LEDMatrix.LedColor.GREEN
+                    : red ? LEDMatrix.LedColor.RED
+                    : LEDMatrix.LedColor.OFF;
+            setPixel(row, column, color);
+        }
+    }
+
+    private void setPixel(int row, int column, LEDMatrix.LedColor color) {
+        checkRange("row", row);
+        checkRange("column", column);
+        // setPixel only adds colors, so switch off first
+        matrix.setPixel(row, column, LEDMatrix.LedColor.OFF);
+        if(color != LEDMatrix.LedColor.OFF){
+            matrix.setPixel(row, column, color);
+        }
+    }
+
+    private static void checkRange(String name, int value) {
+        if(value < 0 || value > 7){
+            throw new IllegalArgumentException(name + " must be 0..7, got " + value);
+        }
+    }
+
+    private static boolean isScroll(String mode) {
+        if(mode.equalsIgnoreCase("scroll")) return true;
+        if(mode.equalsIgnoreCase("noscroll")) return false;
+        throw new IllegalArgumentException("expected scroll or noscroll, got " + mode);
+    }
+
+    /**
+     * splits arguments, the last one is free text which may contain spaces
+     */
+    private static String[] splitText(String arguments, int count) {
+        String[] a = arguments.split("\\s+", count);
+        if(a.length != count || a[count - 1].isEmpty()){
+            throw new IllegalArgumentException("expected " + count + " arguments");
+        }
+        return a;
+    }
+
+    private static String[] split(String arguments, int count) {
+        String[] a = arguments.split("\\s+");
+        if(a.length != count){
+            throw new IllegalArgumentException("expected " + count + " arguments");
+        }
+        return a;
+    }
+
+}
@@ -34,11 +34,28 @@ public class LEDMatrixFactory {
      * @param address the I2C address of the Adafruit backback (default is 0x0070)
      */
     public static LEDMatrix createLEDMatrix(int busNr, int address){
+        return createLEDMatrix(busNr, address, new MessageFrameCache());
+    }
+
+    /**
+     * creates an 8*8 bicolor LED matrix
+     *
+     * @param busNr the bus nr, 1 on current Pi revision, 0 for older revisions
+     * @param address the I2C address of the Adafruit backback (default is 0x0070)
+     * @param frameCache cache for pre-rendered text frames, keep a reference for prewarming and reading its counters,
+     *                   null disables caching, it is not used when not on a Raspberry Pi
+     * @return the LED matrix
+     */
+    public static LEDMatrix createLEDMatrix(int busNr, int address, MessageFrameCache frameCache){
+
+        if(frameCache == null){
+            frameCache = new MessageFrameCache(0);
+        }
 
         LEDMatrix matrix;
 
         try{
-            matrix = new Adafruit8x8LEDMatrix(busNr, address);
+            matrix = new Adafruit8x8LEDMatrix(busNr, address, frameCache);
         } catch (Throwable t){
             // fails if not on a Raspberry Pi
             matrix = new SysOutLEDMatrix();
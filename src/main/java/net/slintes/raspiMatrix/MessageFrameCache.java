@@ -0,0 +1,270 @@
+/*
+ * Copyright 2013 Marc Sluiter
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package net.slintes.raspiMatrix;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of pre-rendered frame sequences for writeString
+ *
+ * a frame is a complete 8*8 single colored picture packed into a long,
+ * row n is stored in bits n*8..n*8+7, already fitted to our hardware setup
+ *
+ * for scrolling text there is one frame per scroll step, without scrolling
+ * there is one frame per char
+ *
+ * the cache is bounded by an approximate memory budget in bytes, least recently
+ * used messages are evicted first
+ *
+ */
+public class MessageFrameCache {
+
+    /**
+     * default memory budget, 64 KB
+     */
+    public static final long DEFAULT_MAX_BYTES = 64 * 1024;
+
+    // rough estimate of key, map entry and array header size per cached message
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, long[]> frames = new LinkedHashMap<Key, long[]>(16, 0.75f, true);
+
+    private long sizeInBytes = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+
+    /**
+     * constructs a cache with the default memory budget
+     */
+    public MessageFrameCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * constructs a cache
+     *
+     * @param maxBytes the memory budget in bytes, 0 disables caching
+     */
+    public MessageFrameCache(long maxBytes) {
+        this.maxBytes = maxBytes < 0 ? 0 : maxBytes;
+    }
+
+    /**
+     * get the frames for the given text, renders and caches them on a miss
+     *
+     * @param text the text
+     * @param doScroll frames for scrolling text if true
+     * @return the frames, must not be modified
+     */
+    long[] getFrames(String text, boolean doScroll) {
+        return getFrames(text, doScroll, Font8x8.FONT8x8);
+    }
+
+    /**
+     * get the frames for the given text, renders and caches them on a miss
+     *
+     * @param text the text
+     * @param doScroll frames for scrolling text if true
+     * @param font the font, see Font8x8 for the layout
+     * @return the frames, must not be modified
+     */
+    synchronized long[] getFrames(String text, boolean doScroll, int[][] font) {
+
+        Key key = new Key(text, doScroll, font);
+        long[] result = frames.get(key);
+        if(result != null){
+            hitCount++;
+            return result;
+        }
+
+        missCount++;
+        result = doScroll ? renderScroll(text, font) : renderNoScroll(text, font);
+
+        long size = sizeOf(key, result);
+        if(size <= maxBytes){
+            frames.put(key, result);
+            sizeInBytes += size;
+            evict();
+        }
+
+        return result;
+    }
+
+    /**
+     * renders and caches the given texts, e.g. at startup
+     *
+     * @param doScroll frames for scrolling text if true
+     * @param texts the texts
+     */
+    public void prewarm(boolean doScroll, String... texts) {
+        for(String text : texts){
+            getFrames(text, doScroll);
+        }
+    }
+
+    /**
+     * removes all cached frames, counters are not reset
+     */
+    public synchronized void clear() {
+        frames.clear();
+        sizeInBytes = 0;
+    }
+
+    public synchronized long getHitCount() {
+        return hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return missCount;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return approximate memory used by cached frames in bytes
+     */
+    public synchronized long getSizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * converts a row of the font to the row value of our hardware setup
+     *
+     * @param fontRow the row as defined in the font
+     * @return the row value, lower 8 bits only
+     */
+    static int fitRow(int fontRow) {
+        // fit it to our hardware setup (pins of LED matrix to the left
+        int row = Integer.reverse(fontRow);
+        row = Integer.reverseBytes(row);
+        return 0xFF & row;
+    }
+
+    /**
+     * get a row value out of a frame
+     *
+     * @param frame the frame
+     * @param row the row number, 0..7
+     * @return the row value, lower 8 bits only
+     */
+    static int getRow(long frame, int row) {
+        return (int) ((frame >>> (row * 8)) & 0xFF);
+    }
+
+    private static long[] renderNoScroll(String text, int[][] font) {
+
+        long[] result = new long[text.length()];
+        for(int pos = 0; pos < text.length(); pos++){
+
+            int[] buffer = font[text.charAt(pos) - 31]; // offset in Font8x8
+
+            long frame = 0;
+            for(int row = 0; row < 8; row++){
+                frame |= ((long) fitRow(buffer[row])) << (row * 8);
+            }
+            result[pos] = frame;
+        }
+        return result;
+    }
+
+    private static long[] renderScroll(String text, int[][] font) {
+
+        // add a space before and after text
+        text = " " + text + " ";
+
+        long[] result = new long[(text.length() - 1) * 8];
+        int frameNr = 0;
+        for(int pos = 0; pos < text.length()-1; pos++){
+
+            // get buffer for current and next char
+            int[] buffer1 = font[text.charAt(pos) - 31];
+            int[] buffer2 = font[text.charAt(pos+1) - 31];
+
+            // we will scroll through the 8 LED columns
+            for(int col = 0; col < 8; col++){
+                long frame = 0;
+                for(int row = 0; row < 8; row++){
+
+                    // shift current row by col, and row of next char by 8-col
+                    int bufferRow1 = fitRow(buffer1[row]) >>> col;
+                    int bufferRow2 = fitRow(buffer2[row]) << (8-col);
+
+                    // now combine them, but only use lower 8 bits
+                    frame |= ((long) (0xFF & (bufferRow1 | bufferRow2))) << (row * 8);
+                }
+                result[frameNr++] = frame;
+            }
+        }
+        return result;
+    }
+
+    private static long sizeOf(Key key, long[] result) {
+        return ENTRY_OVERHEAD_BYTES + key.text.length() * 2L + result.length * 8L;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Key, long[]>> it = frames.entrySet().iterator();
+        while(sizeInBytes > maxBytes && it.hasNext()){
+            Map.Entry<Key, long[]> eldest = it.next();
+            sizeInBytes -= sizeOf(eldest.getKey(), eldest.getValue());
+            it.remove();
+            evictionCount++;
+        }
+    }
+
+    /**
+     * cache key, fonts are compared by identity
+     */
+    private static final class Key {
+
+        private final String text;
+        private final boolean doScroll;
+        private final int[][] font;
+
+        private Key(String text, boolean doScroll, int[][] font) {
+            this.text = text;
+            this.doScroll = doScroll;
+            this.font = font;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return doScroll == other.doScroll && font == other.font && text.equals(other.text);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = text.hashCode();
+            result = 31 * result + (doScroll ? 1 : 0);
+            result = 31 * result + System.identityHashCode(font);
+            return result;
+        }
+    }
+
+}